@@ -0,0 +1,25 @@
+#!/bin/bash
+
+# Compiles the sources into build/tema2.jar and creates a class data sharing
+# archive (AppCDS), so the classes loaded by a small run don't have to be
+# loaded and verified again at every start. The archive is recorded from a
+# training run on tests/in/test0.txt and is used by tema2.sh.
+
+build="build"
+out=$(mktemp)
+
+trap 'rm -f $out' EXIT
+
+rm -rf $build
+mkdir -p $build/classes
+
+javac -d $build/classes skel/*.java || exit 1
+
+# Class data sharing only archives classes loaded from jar files
+jar cf $build/tema2.jar -C $build/classes . || exit 1
+
+# The classpath must be the same when the archive is created and used
+java -XX:ArchiveClassesAtExit=$build/tema2.jsa -cp $build/tema2.jar \
+	Tema2 1 tests/in/test0.txt $out || exit 1
+
+echo "Created $build/tema2.jar and $build/tema2.jsa"
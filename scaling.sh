@@ -0,0 +1,42 @@
+#!/bin/bash
+
+# Generates synthetic corpora and runs Tema2 on them with different numbers
+# of workers, checking the results against a single-threaded reference,
+# and checks the JSONL and binary output formats against the same reference.
+# Usage: ./scaling.sh [workers] [seed]   e.g. ./scaling.sh 1,2,4,8 42
+
+workers=${1:-1,2,4,8}
+seed=${2:-1}
+build=$(mktemp -d)
+corpus=$(mktemp -d)
+failed=0
+
+trap 'rm -rf $build $corpus' EXIT
+
+javac -d $build skel/*.java tests/scaling/*.java || exit 1
+
+# runs the harness on a generated corpus (parameters: name, generator options)
+function run_profile {
+	name=$1
+	shift
+
+	echo ""
+	echo "=== $name"
+	input=$(java -cp $build CorpusGenerator $corpus/$name --seed $seed "$@") || exit 1
+	java -cp $build ScalingHarness $input --workers $workers --runs 3 --warmup 1 || failed=1
+	java -cp $build FormatCheck $input || failed=1
+}
+
+run_profile uniform --profile uniform --files 64 --min-size 262144 --max-size 2097152
+run_profile many-small --profile uniform --files 2000 --min-size 1024 --max-size 8192 --fragment-size 500
+run_profile long-words --profile long-words --files 16 --max-size 524288 --max-word-length 30 --length-dist uniform
+run_profile no-separators --profile no-separators --files 4 --max-size 262144 --run-length 4194304
+run_profile equal-ranks --profile equal-ranks --files 200 --min-size 16384 --max-size 16384
+
+# the per-worker aggregation of the local mode, with the workers in groups
+echo ""
+echo "=== uniform (local mode, 2 groups)"
+java -cp $build ScalingHarness $corpus/uniform/input.txt --workers $workers --runs 3 --warmup 1 \
+	--mode local --groups 2 || failed=1
+
+exit $failed
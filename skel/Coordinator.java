@@ -1,15 +1,24 @@
-import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 import java.util.stream.Collectors;
 
 /**
@@ -17,6 +26,11 @@ import java.util.stream.Collectors;
  * and coordinates the worker threads
 */
 public class Coordinator {
+    /**
+    * Total size of the files up to which the Map-Reduce operations
+    * are executed on the calling thread, without creating a pool
+    */
+    public static final long INLINE_LIMIT = 64 * 1024;
     /**
     * list of files to process
     */
@@ -41,55 +55,363 @@ public class Coordinator {
     * List of Reduce Tasks 
     */
     private ArrayList<TaskReduce> reduceList;
+    /**
+    * Writer of the results, reused for every output
+    */
+    private ResultWriter writer;
 
     public Coordinator(ArrayList<String> fileList, int fragmentSize, int nWorkers, String outFile) {
+        this(fileList, fragmentSize, nWorkers, outFile, ResultWriter.Format.CSV);
+    }
+
+    public Coordinator(ArrayList<String> fileList, int fragmentSize, int nWorkers, String outFile,
+                       ResultWriter.Format format) {
         this.fileList = fileList;
         this.fragmentSize = fragmentSize;
         this.nWorkers = nWorkers;
         this.outFile = outFile;
+        this.writer = new ResultWriter(format);
     }
 
     /**
      * Create Map and Reduce Tasks and assigns them to workers,
      * and writes the output for each string in descending order
-     * by the rank of each file
+     * by the rank of each file. Small inputs, or a single worker, are
+     * processed on the calling thread, because creating the pool
+     * takes longer than the work itself
      * @throws IOException in case of exceptions to reading/writing
      */
     public void execute() throws IOException {
+        ConcurrentHashMap<String, FileResult> outMap  = new ConcurrentHashMap<>();
+
+        if (nWorkers == 1 || getTotalSize() <= INLINE_LIMIT) {
+            doMapInline();
+
+            doReduceInline(outMap);
+        } else {
+            ForkJoinPool fjp = new ForkJoinPool(nWorkers);
+
+            doMap(fjp);
+
+            doReduce(fjp, outMap);
+
+            fjp.shutdown();
+        }
+
+        List<FileResult> sortedResults = computeResults(outMap);
+
+        writeOutput(sortedResults, outFile);
+    }
+
+    /**
+     * Execute the Map-Reduce operations with the workers split in groups,
+     * each group with its own pool and its own files, so the fragments
+     * of a file are processed by the same group of threads. Every worker
+     * folds the fragments it processes into one aggregate per file, and
+     * the Reduce operation only merges these partial aggregates
+     * @param nGroups the number of groups the workers are split into
+     * @throws IOException in case of exceptions to reading/writing
+     * @throws IllegalArgumentException if there is no group
+     */
+    public void executeLocal(int nGroups) throws IOException {
+        if (nGroups < 1) {
+            throw new IllegalArgumentException("The number of groups must be at least 1");
+        }
+
+        LocalAggregator aggregator = new LocalAggregator();
+        ArrayList<ArrayList<String>> groups = createGroups(Math.min(nGroups, nWorkers));
+        ArrayList<ForkJoinPool> pools = new ArrayList<>();
+        ArrayList<ForkJoinTask<Void>> tasks = new ArrayList<>();
+
+        // Start the Map operations of all the groups
+        for (int i = 0; i < groups.size(); i++) {
+            ArrayList<TaskMap> groupMapList = createMapTasks(groups.get(i), fragmentSize);
+
+            // Split the workers evenly between the groups
+            int groupWorkers = nWorkers / groups.size() + (i < nWorkers % groups.size() ? 1 : 0);
+            ForkJoinPool fjp = new ForkJoinPool(groupWorkers);
+
+            pools.add(fjp);
+            tasks.add(fjp.submit(new MapRunnable(0, groupMapList, aggregator)));
+        }
+
+        for (ForkJoinTask<Void> task : tasks) {
+            task.join();
+        }
+
+        for (ForkJoinPool fjp : pools) {
+            fjp.shutdown();
+        }
+
+        HashMap<String, FileAggregate> aggregates = aggregator.merge();
+
+        writeOutput(computeResults(collectResults(aggregates.values())), outFile);
+    }
+
+    /**
+     * Split the files in groups with about the same total size,
+     * assigning the largest files first
+     * @param nGroups the number of groups
+     * @return the list of files of each group, without the empty groups
+     */
+    public ArrayList<ArrayList<String>> createGroups(int nGroups) {
+        ArrayList<ArrayList<String>> groups = new ArrayList<>();
+        long[] groupSizes = new long[nGroups];
+
+        for (int i = 0; i < nGroups; i++) {
+            groups.add(new ArrayList<>());
+        }
+
+        List<String> sortedFiles = fileList.stream()
+                .sorted(Comparator.comparingLong((String f) -> new File(f).length()).reversed())
+                .collect(Collectors.toList());
+
+        for (String fileName : sortedFiles) {
+            // Find the group with the smallest total size
+            int group = 0;
+            for (int i = 1; i < nGroups; i++) {
+                if (groupSizes[i] < groupSizes[group]) {
+                    group = i;
+                }
+            }
+
+            groups.get(group).add(fileName);
+            groupSizes[group] += new File(fileName).length();
+        }
+
+        groups.removeIf(List::isEmpty);
+
+        return groups;
+    }
+
+    /**
+     * Create the results of the files from their aggregates
+     * @param aggregates the aggregate of each file
+     * @return the map with the name of the file as key and the result as value
+     */
+    public ConcurrentHashMap<String, FileResult> collectResults(Collection<FileAggregate> aggregates) {
+        ConcurrentHashMap<String, FileResult> outMap  = new ConcurrentHashMap<>();
+
+        for (FileAggregate aggregate : aggregates) {
+            // Files without words don't have a rank
+            if (aggregate.getTotalWords() > 0) {
+                double rank = aggregate.computeRank();
+                String name = new File(aggregate.getFileName()).getName();
+
+                outMap.put(aggregate.getFileName(), new FileResult(name, rank,
+                        aggregate.getMaxLength(), aggregate.getMaxLengthCount()));
+            }
+        }
+
+        return outMap;
+    }
+
+    /**
+     * Keep processing the files as they grow, mapping only the bytes
+     * appended since the previous batch, and rewrite the output
+     * every time the ranks change
+     * @param interval the time in milliseconds between two batches
+     * @throws IOException in case of exceptions to reading/writing
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    public void watch(long interval) throws IOException, InterruptedException {
         ForkJoinPool fjp = new ForkJoinPool(nWorkers);
 
-        ConcurrentHashMap<Double, String> outMap  = new ConcurrentHashMap<>();
+        HashMap<String, FileState> states = new HashMap<>();
+        for (String fileName : fileList) {
+            states.put(fileName, new FileState(fileName));
+        }
+
+        try {
+            while (true) {
+                if (doIncrementalMap(fjp, states)) {
+                    List<FileAggregate> aggregates = states.values().stream()
+                            .map(FileState::getAggregate)
+                            .collect(Collectors.toList());
+
+                    replaceOutput(computeResults(collectResults(aggregates)), outFile);
+                }
+
+                Thread.sleep(interval);
+            }
+        } finally {
+            fjp.shutdown();
+        }
+    }
+
+    /**
+     * Create Map Tasks only for the bytes appended to each file since
+     * the previous batch and add the resulting words to the file states.
+     * The bytes after the last separator may belong to a word that is
+     * not complete yet, so they are left to be mapped in the next batch
+     * @param fjp the pool of workers that do the Map operations
+     * @param states the progress of each file
+     * @return true if any of the files changed
+     * @throws IOException in case of exceptions to reading/writing
+     */
+    public boolean doIncrementalMap(ForkJoinPool fjp, HashMap<String, FileState> states) throws IOException {
+        mapList = new ArrayList<>();
+        HashMap<String, Long> boundaries = new HashMap<>();
+        boolean changed = false;
+
+        for (String fileName : fileList) {
+            FileState state = states.get(fileName);
+            long fileSize = new File(fileName).length();
+
+            // The file was truncated or replaced, so process it again
+            if (fileSize < state.getFileSize()) {
+                state.reset();
+            }
+
+            if (fileSize == state.getFileSize()) {
+                continue;
+            }
+
+            // The bytes up to the previous size don't contain a
+            // separator after the offset, so only the new bytes are searched
+            long searchStart = Math.max(state.getOffset(), state.getFileSize());
+            long boundary = findLastSeparator(fileName, searchStart, fileSize);
+
+            if (boundary > searchStart) {
+                addMapTasks(mapList, fileName, state.getOffset(), boundary, fragmentSize);
 
-        doMap(fjp);
+                state.setPendingLength(0);
+                readPendingWord(state, boundary, fileSize);
+            } else {
+                // No separator was appended, so the pending word only grows.
+                // Decoding starts again from the incomplete character, if any
+                boundary = state.getOffset();
 
-        doReduce(fjp, outMap);
+                readPendingWord(state, state.getPendingEnd(), fileSize);
+            }
 
-        fjp.shutdown();
+            state.setFileSize(fileSize);
+            boundaries.put(fileName, boundary);
+            changed = true;
+        }
+
+        if (!mapList.isEmpty()) {
+            fjp.invoke(new MapRunnable(0, mapList));
+        }
+
+        for (TaskMap map : mapList) {
+            states.get(map.getFileName()).addWords(map.getFragmentMap());
+        }
 
-        Map<Double, String> sortedMap = computeResults(outMap);
+        for (Map.Entry<String, Long> entry : boundaries.entrySet()) {
+            states.get(entry.getKey()).setOffset(entry.getValue());
+        }
 
-        writeOutput(sortedMap, outFile);
+        return changed;
     }
 
     /**
-     * Write output to file
-     * @param map the resulting map after the Reduce operation 
-     *            sorted in descending order by rank
-     * @param outName name of the output file
+     * Search backwards for the last separator in the region of a file
+     * between start and end
+     * @param fileName the file to be searched
+     * @param start the offset from where the region begins
+     * @param end the offset where the region ends
+     * @return the offset right after the last separator, or start if
+     *         the region doesn't contain a separator
+     * @throws IOException in case of exceptions to reading/writing
+     */
+    public long findLastSeparator(String fileName, long start, long end) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(fileName, "r");
+        byte[] buffer = new byte[4096];
+        long position = end;
+
+        try {
+            while (position > start) {
+                int size = (int) Math.min(buffer.length, position - start);
+                position -= size;
+
+                raf.seek(position);
+                raf.readFully(buffer, 0, size);
+
+                for (int i = size - 1; i >= 0; i--) {
+                    if (MapRunnable.separators.indexOf((char) buffer[i]) >= 0) {
+                        return position + i + 1;
+                    }
+                }
+            }
+        } finally {
+            raf.close();
+        }
+
+        return start;
+    }
+
+    /**
+     * Add the characters of a region of a file which doesn't contain
+     * separators to the pending word, decoding it in blocks. The bytes at
+     * the end of the region which don't form a complete character yet are
+     * counted on their own while they are at the end of the file, and
+     * decoded again together with the bytes appended after them
+     * @param state the progress of the file
+     * @param start the offset from where the region begins
+     * @param end the offset where the region ends
      * @throws IOException in case of exceptions to reading/writing
      */
-    public void writeOutput(Map<Double, String> map, String outName) throws IOException {
-        File out = new File(outName);
-        FileOutputStream fos = new FileOutputStream(out);
+    public void readPendingWord(FileState state, long start, long end) throws IOException {
+        CharsetDecoder decoder = Charset.defaultCharset().newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        ByteBuffer in = ByteBuffer.allocate(8192);
+        CharBuffer out = CharBuffer.allocate(8192);
+        long length = 0;
+        long position = start;
+
+        try (FileChannel channel = FileChannel.open(Paths.get(state.getFileName()), StandardOpenOption.READ)) {
+            while (position < end) {
+                in.limit((int) Math.min(in.capacity(), in.position() + end - position));
 
-        BufferedWriter bw = new BufferedWriter(new OutputStreamWriter(fos));
+                int read = channel.read(in, position);
+                if (read < 0) {
+                    break;
+                }
+                position += read;
 
-        for (Map.Entry<Double, String> entry : map.entrySet()) {
-            bw.write(entry.getValue());
-            bw.newLine();
+                // Bytes of a character split between two blocks
+                // are kept in the buffer for the next block
+                in.flip();
+                decoder.decode(in, out, false);
+                length += out.position();
+                out.clear();
+                in.compact();
+            }
         }
 
-        bw.close();
+        state.setPendingLength(state.getPendingLength() + length);
+        state.setPendingEnd(position - in.position());
+
+        // Count the incomplete character as if the file ended here
+        in.flip();
+        decoder.decode(in, out, true);
+        decoder.flush(out);
+        state.setPendingTail(out.position());
+    }
+
+    /**
+     * Write output to file
+     * @param results the results of the Reduce operation
+     *            sorted in descending order by rank
+     * @param outName name of the output file
+     * @throws IOException in case of exceptions to reading/writing
+     */
+    public void writeOutput(List<FileResult> results, String outName) throws IOException {
+        writer.write(results, outName);
+    }
+
+    /**
+     * Replace the output file without a reader ever seeing a partial
+     * output, used in watch mode
+     * @param results the results of the Reduce operation
+     *            sorted in descending order by rank
+     * @param outName name of the output file
+     * @throws IOException in case of exceptions to reading/writing
+     */
+    public void replaceOutput(List<FileResult> results, String outName) throws IOException {
+        writer.replace(results, outName);
     }
 
      /**
@@ -103,28 +425,72 @@ public class Coordinator {
         fjp.invoke(new MapRunnable(0, mapList));
     }
 
+    /**
+     * Create the Map Tasks and execute the Map
+     * operations on the calling thread
+     */
+    public void doMapInline() {
+        mapList = createMapTasks(fileList, fragmentSize);
+
+        new MapRunnable(0, mapList).computeInline();
+    }
+
      /**
      * Create the Reduce Tasks and assigns them to
      * workers to execute the Reduce operations
      * @param fjp the pool of workers that do the Reduce operations
      */
-    public void doReduce(ForkJoinPool fjp, ConcurrentHashMap<Double, String> outMap) {
+    public void doReduce(ForkJoinPool fjp, ConcurrentHashMap<String, FileResult> outMap) {
         reduceList = createReduceTasks();
 
         fjp.invoke(new ReduceRunnable(0, reduceList, outMap));
     }
 
     /**
-     * Sort the map resulted from the Reduce operations by rank of each file
-     * @param outMap the map which contains the output strings for each file
-     * @return the sorted map
+     * Create the Reduce Tasks and execute the Reduce
+     * operations on the calling thread
+     * @param outMap the map which will contain the result for each file
+     */
+    public void doReduceInline(ConcurrentHashMap<String, FileResult> outMap) {
+        reduceList = createReduceTasks();
+
+        new ReduceRunnable(0, reduceList, outMap).computeInline();
+    }
+
+    /**
+     * Compute the total size of the files to process
+     * @return the sum of the sizes of the files
+     */
+    public long getTotalSize() {
+        long totalSize = 0;
+
+        for (String fileName : fileList) {
+            totalSize += new File(fileName).length();
+        }
+
+        return totalSize;
+    }
+
+    /**
+     * Sort the results of the Reduce operations by rank of each file,
+     * keeping the files with the same rank in the order of the input
+     * @param outMap the map which contains the result for each file
+     * @return the sorted results
      */
-    public  Map<Double, String> computeResults(ConcurrentHashMap<Double, String> outMap) {
-        Map<Double, String> sortedMap = new TreeMap<Double, String>(Collections.reverseOrder());
+    public List<FileResult> computeResults(ConcurrentHashMap<String, FileResult> outMap) {
+        List<FileResult> sortedResults = new ArrayList<>();
+
+        for (String fileName : fileList) {
+            FileResult result = outMap.get(fileName);
+
+            if (result != null) {
+                sortedResults.add(result);
+            }
+        }
 
-        sortedMap.putAll(outMap);
+        sortedResults.sort(Comparator.comparingDouble(FileResult::getRank).reversed());
 
-        return sortedMap;
+        return sortedResults;
     }
 
     /**
@@ -137,37 +503,50 @@ public class Coordinator {
     public ArrayList<TaskMap> createMapTasks(ArrayList<String> fileList, long fragmentSize) {
         ArrayList<TaskMap> mapList = new ArrayList<>();
 
-        int id = 0;
         // Traverse the fileList
         for (String fileName : fileList) {
             File file = new File(fileName);
-            long fileSize = file.length();
-            long offset = 0;
-            long size;
-            boolean endOfFile = false;
-
-            // Split the file into fragments
-            // until the endOfFile is reached
-            do {
-                if (offset + fragmentSize > fileSize) {
-                    size = fileSize - offset;
-                    endOfFile = true;
-                } else {
-                    size = fragmentSize;
-                }
-
-                // Add the data to a Map Task
-                TaskMap task = new TaskMap(id, fileName, offset, size, endOfFile);
-                mapList.add(task);
 
-                id++;
-                offset += fragmentSize;
-            } while (!endOfFile);
+            addMapTasks(mapList, fileName, 0, file.length(), fragmentSize);
         }
 
         return mapList;
     }
 
+    /**
+     * Split the region of a file between start and end in fragments
+     * by the given size and add the data of each one to a Map Task
+     * @param mapList the list of Map Tasks the new tasks are added to
+     * @param fileName the file to be processed
+     * @param start the offset from where the region begins
+     * @param end the offset where the region ends
+     * @param fragmentSize the default size of each fragment
+     */
+    public void addMapTasks(ArrayList<TaskMap> mapList, String fileName, long start, long end, long fragmentSize) {
+        int id = mapList.size();
+        long offset = start;
+        long size;
+        boolean endOfFile = false;
+
+        // Split the region into fragments
+        // until the end is reached
+        do {
+            if (offset + fragmentSize > end) {
+                size = end - offset;
+                endOfFile = true;
+            } else {
+                size = fragmentSize;
+            }
+
+            // Add the data to a Map Task
+            TaskMap task = new TaskMap(id, fileName, offset, size, endOfFile);
+            mapList.add(task);
+
+            id++;
+            offset += fragmentSize;
+        } while (!endOfFile);
+    }
+
      /**
      * Create the Reduce Tasks by assigning them
      * the Map Tasks processed for each file
@@ -175,13 +554,16 @@ public class Coordinator {
      */
     public ArrayList<TaskReduce> createReduceTasks() {
         ArrayList<TaskReduce> reduceList = new ArrayList<>();
+
+        // Group the Map Tasks by file in a single pass
+        Map<String, List<TaskMap>> fileMaps = mapList.stream()
+                .collect(Collectors.groupingBy(TaskMap::getFileName));
+
         int id = 0;
         for (String file : fileList) {
             // Add to each Reduce Task the list of Map Tasks
             // that corresponds with the file
-            List<TaskMap> taskMapsList = mapList.stream()
-                    .filter(t -> t.getFileName().equals(file))
-                    .collect(Collectors.toList());
+            List<TaskMap> taskMapsList = fileMaps.getOrDefault(file, new ArrayList<>());
 
             reduceList.add(new TaskReduce(id, file, taskMapsList));
             id++;
@@ -0,0 +1,120 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Class that counts the words of a file by their length, which is
+ * enough to compute the rank, the maximum length and the number of
+ * words with the maximum length without keeping the words
+*/
+public class FileAggregate {
+    /**
+    * Name of the file
+    */
+    private String fileName;
+    /**
+    * Map which contains the length of the words
+    * and the number of words which are that length
+    */
+    private HashMap<Integer, Long> lengthMap;
+    /**
+    * Total words counted
+    */
+    private long totalWords;
+
+    public FileAggregate(String fileName) {
+        this.fileName = fileName;
+        this.lengthMap = new HashMap<>();
+        this.totalWords = 0;
+    }
+
+    public FileAggregate(FileAggregate other) {
+        this.fileName = other.fileName;
+        this.lengthMap = new HashMap<>(other.lengthMap);
+        this.totalWords = other.totalWords;
+    }
+
+    /**
+     * Add the words found by a Map Task to the number
+     * of words for each length
+     * @param fragmentMap the map created during the Map operation
+     */
+    public void addWords(HashMap<Integer, ArrayList<String>> fragmentMap) {
+        if (fragmentMap == null) {
+            return;
+        }
+
+        for (Map.Entry<Integer, ArrayList<String>> entry : fragmentMap.entrySet()) {
+            lengthMap.merge(entry.getKey(), (long) entry.getValue().size(), Long::sum);
+            totalWords += entry.getValue().size();
+        }
+    }
+
+    /**
+     * Add a single word of the given length
+     * @param length the length of the word
+     */
+    public void addWord(int length) {
+        lengthMap.merge(length, 1L, Long::sum);
+        totalWords++;
+    }
+
+    /**
+     * Add the words counted in another aggregate of the same file
+     * @param other the aggregate to be added
+     */
+    public void merge(FileAggregate other) {
+        for (Map.Entry<Integer, Long> entry : other.lengthMap.entrySet()) {
+            lengthMap.merge(entry.getKey(), entry.getValue(), Long::sum);
+        }
+
+        totalWords += other.totalWords;
+    }
+
+    /**
+     * Computes the file rank
+     * @return the rank of the file
+     */
+    public double computeRank() {
+        double rank = 0;
+
+        for (Map.Entry<Integer, Long> entry : lengthMap.entrySet()) {
+            rank += ReduceRunnable.computeFib((int) Math.min(entry.getKey() + 1L, Integer.MAX_VALUE))
+                    * entry.getValue();
+        }
+
+        return rank / totalWords;
+    }
+
+    /**
+     * Computes the maximum length of a word
+     * @return the maximum length found in the file
+     */
+    public int getMaxLength() {
+        int maxLength = 0;
+
+        for (int length : lengthMap.keySet()) {
+            if (length > maxLength) {
+                maxLength = length;
+            }
+        }
+
+        return maxLength;
+    }
+
+    /**
+     * Computes the number of words with the maximum length
+     * @return the number of words which are the maximum length
+     */
+    public long getMaxLengthCount() {
+        return lengthMap.getOrDefault(getMaxLength(), 0L);
+    }
+
+    public long getTotalWords() {
+        return totalWords;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+}
@@ -0,0 +1,53 @@
+import java.nio.charset.StandardCharsets;
+
+public class FileResult {
+    /**
+    * Name of the file, without its path
+    */
+    private String name;
+    /**
+    * Name of the file encoded in UTF-8, so it is not encoded
+    * again every time the result is written
+    */
+    private byte[] nameBytes;
+    /**
+    * Rank of the file
+    */
+    private double rank;
+    /**
+    * The maximum length of a word found in the file
+    */
+    private int maxLength;
+    /**
+    * The number of words with the maximum length
+    */
+    private long maxLengthCount;
+
+    public FileResult(String name, double rank, int maxLength, long maxLengthCount) {
+        this.name = name;
+        this.nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        this.rank = rank;
+        this.maxLength = maxLength;
+        this.maxLengthCount = maxLengthCount;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public byte[] getNameBytes() {
+        return nameBytes;
+    }
+
+    public double getRank() {
+        return rank;
+    }
+
+    public int getMaxLength() {
+        return maxLength;
+    }
+
+    public long getMaxLengthCount() {
+        return maxLengthCount;
+    }
+}
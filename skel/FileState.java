@@ -0,0 +1,140 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * Class that keeps the progress of a file processed in watch mode,
+ * so that only the bytes appended since the last batch are mapped
+*/
+public class FileState {
+    /**
+    * Name of the file
+    */
+    private String fileName;
+    /**
+    * Offset up to which the file was processed, always
+    * placed right after a separator
+    */
+    private long offset;
+    /**
+    * Size of the file when it was last checked
+    */
+    private long fileSize;
+    /**
+    * Number of characters decoded from the word found after the last
+    * separator, which is counted in the results but processed again
+    * in the next batch
+    */
+    private long pendingLength;
+    /**
+    * Offset up to which the pending word was decoded; the bytes after it
+    * are the start of a character which isn't complete yet
+    */
+    private long pendingEnd;
+    /**
+    * Number of characters the incomplete bytes after pendingEnd are decoded
+    * to while they are at the end of the file
+    */
+    private int pendingTail;
+    /**
+    * Number of words for each length found before offset
+    */
+    private FileAggregate words;
+
+    public FileState(String fileName) {
+        this.fileName = fileName;
+        reset();
+    }
+
+    /**
+     * Discard everything processed so far, used when
+     * the file was truncated or replaced
+     */
+    public void reset() {
+        this.offset = 0;
+        this.fileSize = 0;
+        this.pendingLength = 0;
+        this.pendingEnd = 0;
+        this.pendingTail = 0;
+        this.words = new FileAggregate(fileName);
+    }
+
+    /**
+     * Add the words found by a Map Task before offset
+     * @param fragmentMap the map created during the Map operation
+     */
+    public void addWords(HashMap<Integer, ArrayList<String>> fragmentMap) {
+        words.addWords(fragmentMap);
+    }
+
+    /**
+     * Create the aggregate of the file as it is now, including the
+     * pending word, which is not added to the words before offset
+     * because it is processed again in the next batch
+     * @return the aggregate of the file
+     */
+    public FileAggregate getAggregate() {
+        FileAggregate aggregate = new FileAggregate(words);
+        long length = getWordLength();
+
+        // A pending word longer than an int can only be
+        // counted with the largest int
+        if (length > 0) {
+            aggregate.addWord((int) Math.min(length, Integer.MAX_VALUE));
+        }
+
+        return aggregate;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public long getOffset() {
+        return offset;
+    }
+
+    public void setOffset(long offset) {
+        this.offset = offset;
+    }
+
+    public long getFileSize() {
+        return fileSize;
+    }
+
+    public void setFileSize(long fileSize) {
+        this.fileSize = fileSize;
+    }
+
+    /**
+     * Computes the length of the pending word, including the
+     * characters of the incomplete bytes at the end of the file
+     * @return the length of the pending word
+     */
+    public long getWordLength() {
+        return pendingLength + pendingTail;
+    }
+
+    public long getPendingLength() {
+        return pendingLength;
+    }
+
+    public void setPendingLength(long pendingLength) {
+        this.pendingLength = pendingLength;
+    }
+
+    public long getPendingEnd() {
+        return pendingEnd;
+    }
+
+    public void setPendingEnd(long pendingEnd) {
+        this.pendingEnd = pendingEnd;
+    }
+
+    public int getPendingTail() {
+        return pendingTail;
+    }
+
+    public void setPendingTail(int pendingTail) {
+        this.pendingTail = pendingTail;
+    }
+}
@@ -0,0 +1,63 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Class that keeps, for every worker, one aggregate for each file
+ * it processed, so that the fragments of a file are folded on the worker
+ * that mapped them and the Reduce operation only merges one partial
+ * aggregate per worker instead of every fragment map
+*/
+public class LocalAggregator {
+    /**
+    * Aggregates of the current worker, with the file name as key
+    */
+    private final ThreadLocal<HashMap<String, FileAggregate>> localAggregates;
+    /**
+    * Aggregates of all the workers, collected for the merge
+    */
+    private final ConcurrentLinkedQueue<HashMap<String, FileAggregate>> allAggregates;
+
+    public LocalAggregator() {
+        this.allAggregates = new ConcurrentLinkedQueue<>();
+        this.localAggregates = ThreadLocal.withInitial(() -> {
+            HashMap<String, FileAggregate> aggregates = new HashMap<>();
+            allAggregates.add(aggregates);
+            return aggregates;
+        });
+    }
+
+    /**
+     * Fold the words of a fragment into the aggregate
+     * the current worker keeps for the file
+     * @param fileName the file the fragment belongs to
+     * @param fragmentMap the map created during the Map operation
+     */
+    public void add(String fileName, HashMap<Integer, ArrayList<String>> fragmentMap) {
+        localAggregates.get().computeIfAbsent(fileName, FileAggregate::new).addWords(fragmentMap);
+    }
+
+    /**
+     * Merge the partial aggregates of all the workers, must be
+     * called after all the Map operations are finished
+     * @return the aggregate of each file, with the file name as key
+     */
+    public HashMap<String, FileAggregate> merge() {
+        HashMap<String, FileAggregate> aggregates = new HashMap<>();
+
+        for (HashMap<String, FileAggregate> workerAggregates : allAggregates) {
+            for (Map.Entry<String, FileAggregate> entry : workerAggregates.entrySet()) {
+                FileAggregate aggregate = aggregates.get(entry.getKey());
+
+                if (aggregate == null) {
+                    aggregates.put(entry.getKey(), entry.getValue());
+                } else {
+                    aggregate.merge(entry.getValue());
+                }
+            }
+        }
+
+        return aggregates;
+    }
+}
@@ -4,8 +4,8 @@ import java.io.IOException;
 import java.io.RandomAccessFile;
 import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.List;
 import java.util.concurrent.RecursiveAction;
+import java.util.regex.Pattern;
 
 /**
 *  Class that executes the Map Operations
@@ -13,110 +13,118 @@ import java.util.concurrent.RecursiveAction;
 */
 public class MapRunnable extends RecursiveAction {
     /**
-    * Index of the Map Task 
+    * Index of the first Map Task
     */
     private final int mapIndex;
     /**
+    * Index after the last Map Task
+    */
+    private final int endIndex;
+    /**
     * List of Map Tasks
     */
     private final ArrayList<TaskMap> listMap;
     /**
     * Separators used to split the files
     */
-    private final String separators = ";:/?~\\.,><`[]{}()!@#$%^&-_+'=*\"| \t\r\n";
+    static final String separators = ";:/?~\\.,><`[]{}()!@#$%^&-_+'=*\"| \t\r\n";
+    /**
+    * Pattern which matches any of the separators, used to split
+    * the fragments into words
+    */
+    private static final Pattern SPLIT_PATTERN = Pattern.compile("[" + Pattern.quote(separators) + "]");
+    /**
+    * Aggregator of the words found by each worker, or null if
+    * the words are kept in the map of each Map Task
+    */
+    private final LocalAggregator aggregator;
 
     public MapRunnable(int mapIndex, ArrayList<TaskMap> listMap) {
+        this(mapIndex, listMap.size(), listMap, null);
+    }
+
+    public MapRunnable(int mapIndex, ArrayList<TaskMap> listMap, LocalAggregator aggregator) {
+        this(mapIndex, listMap.size(), listMap, aggregator);
+    }
+
+    public MapRunnable(int mapIndex, int endIndex, ArrayList<TaskMap> listMap, LocalAggregator aggregator) {
         this.mapIndex = mapIndex;
+        this.endIndex = endIndex;
         this.listMap = listMap;
+        this.aggregator = aggregator;
     }
 
     @Override
     protected void compute() {
+        if (endIndex - mapIndex <= 0) {
+            return;
+        }
 
-        TaskMap map = listMap.get(mapIndex);
-
-        adjustFragment(map);
+        if (endIndex - mapIndex == 1) {
+            adjustFragment(listMap.get(mapIndex));
+            return;
+        }
 
-        List<MapRunnable> tasks = new ArrayList<>();
+        // Every fragment finds its own bounds, so the Map Tasks
+        // are independent and can be split in halves
+        int middle = (mapIndex + endIndex) >>> 1;
 
-        if (mapIndex + 1 < listMap.size()) {
-            MapRunnable t = new MapRunnable(mapIndex + 1, listMap);
-            tasks.add(t);
-            t.fork();
-        }
+        invokeAll(new MapRunnable(mapIndex, middle, listMap, aggregator),
+                new MapRunnable(middle, endIndex, listMap, aggregator));
+    }
 
-        for (MapRunnable task : tasks) {
-            task.join();
+    /**
+     * Execute the Map operations of all the Map Tasks on the
+     * calling thread, without a pool, used for small inputs
+     */
+    public void computeInline() {
+        for (int i = mapIndex; i < endIndex; i++) {
+            new MapRunnable(i, i + 1, listMap, aggregator).compute();
         }
-
     }
 
     /**
      * Check if the fragment begins or ends in the middle of a word
      * and adjusts the size and offset, and finally creates a hashmap
-     * of all the words the fragment contains
+     * of all the words the fragment contains. A fragment that begins in
+     * the middle of a word skips it, because the previous fragment is
+     * extended until the end of the same word.
      * @param map the Map Task that the operations are being applied on
      */
     public void adjustFragment(TaskMap map) {
-
-        // Check if the map is the beginning of the file,
-        // in which case it doesn't need to be adjusted
-         if (map.getOffset() != 0) {
-            
-            TaskMap prevMap = listMap.get(mapIndex - 1);
-
-            // Check if previous Task was modified
-            // to adjust size and offset 
-            if (prevMap.isModified()) {
-                map.setOffset(map.getOffset() + prevMap.getShiftedBytes());
-                map.setSize(map.getSize() - prevMap.getShiftedBytes());
-            }
-        }
-
-
         File file = new File(map.getFileName());
 
         try {
-            // Check if it is the final Map Task for the file,
-            // else verify it doesn't end on the middle of the word
-            if (!map.isEndOfFile()) {
-
-                String lastChar = getChar(file, (int) map.getSize(), map.getOffset());
-
-                // If the final character is not a separator, then
-                // check the next character until a separator is found
-                while (!separators.contains(lastChar)) {
-                    String nextChar = getChar(file, (int) (map.getSize() + 1), map.getOffset());
-
-                    // If the next character is a separator
-                    // then the fragment can be split
-                    if (separators.contains(nextChar)) {
-                        break;
-                    }
-
-                    // Set current Map Task as modified
-                    // to alert the next task
-                    map.setModified(true);
-                    
-                    // Used for the next task
-                    map.incrementShiftedBytes();
-                    // Adjust size of fragment
-                    map.incrementSize();
-
-                    // If the end of file is reached, break the loop
-                    if (map.getOffset() + map.getSize() == file.length()) {
-                        break;
-                    }
+            long start = map.getOffset();
+            long end = map.getOffset() + map.getSize();
+
+            // The first fragment of the file doesn't need to be adjusted.
+            // If a single word covers all of the fragment, it belongs
+            // to a previous fragment and this one is empty
+            if (mapIndex > 0
+                    && listMap.get(mapIndex - 1).getFileName().equals(map.getFileName())) {
+                start = findWordEnd(file, start, end);
+            }
 
-                    lastChar = nextChar;
-                }
+            // The final fragment of the file ends at the end of the file
+            if (!map.isEndOfFile() && start < end) {
+                end = findWordEnd(file, end, Long.MAX_VALUE);
             }
 
+            map.setOffset(start);
+            map.setSize(Math.max(0, end - start));
+
             // Convert the string and create the map
             if (map.getSize() > 0) {
                 String fragmentString = getFragmentString(map);
 
-                map.setFragmentMap(createWordMap(fragmentString));
+                // In local mode fold the words into the aggregate of
+                // the worker instead of keeping them in the Map Task
+                if (aggregator != null) {
+                    aggregator.add(map.getFileName(), createWordMap(fragmentString));
+                } else {
+                    map.setFragmentMap(createWordMap(fragmentString));
+                }
             }
 
         } catch (IOException e) {
@@ -125,26 +133,54 @@ public class MapRunnable extends RecursiveAction {
     }
 
     /**
-     * Get the last character in the string
-     * @param file from where the string is read
-     * @param size of the string to be read
-     * @param offset from which the string is read
+     * Find the first position, starting from the given one, which
+     * is not in the middle of a word
+     * @param file from where the characters are read
+     * @param position from where the search begins
+     * @param limit the position where the search stops
      * @throws IOException in case of exceptions to reading/writing
-     * @return the last character in the string
+     * @return the position after the last character of the word, the
+     *         given position if it is right before or after a separator,
+     *         or the limit if the word doesn't end before it
      */
-    public String getChar(File file, int size, long offset) throws IOException {
-        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+    public long findWordEnd(File file, long position, long limit) throws IOException {
+        if (position == 0) {
+            return position;
+        }
 
-        byte[] magic = new byte[size];
-        int lastByte = (int) size - 1;
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
 
-        raf.seek(offset);
-        raf.readFully(magic);
-        raf.close();
+        try {
+            long stop = Math.min(raf.length(), limit);
+            byte[] buffer = new byte[4096];
+
+            // If the previous character is a separator,
+            // then the fragment can be split here
+            raf.seek(position - 1);
+            if (position >= stop || separators.indexOf((char) raf.read()) >= 0) {
+                return position;
+            }
+
+            // Else read forward until a separator is found
+            while (position < stop) {
+                int size = (int) Math.min(buffer.length, stop - position);
+                raf.readFully(buffer, 0, size);
+
+                for (int i = 0; i < size; i++) {
+                    if (separators.indexOf((char) buffer[i]) >= 0) {
+                        return position + i;
+                    }
+                }
 
-        return String.valueOf((char) magic[lastByte]);
+                position += size;
+            }
+
+            return stop;
+        } finally {
+            raf.close();
+        }
     }
-    
+
     /**
      * Reads the fragment and converts it to a String
      * @param map which contains the size and offset to read the fragment
@@ -153,10 +189,11 @@ public class MapRunnable extends RecursiveAction {
      */
     public String getFragmentString(TaskMap map) throws IOException{
         byte[] fragmentByte = new byte[(int) (map.getSize())];
-                
-        RandomAccessFile raf = new RandomAccessFile(map.getFileName(), "rw");
+
+        RandomAccessFile raf = new RandomAccessFile(map.getFileName(), "r");
         raf.seek(map.getOffset());
         raf.readFully(fragmentByte);
+        raf.close();
 
         return new String(fragmentByte);
     }
@@ -169,11 +206,8 @@ public class MapRunnable extends RecursiveAction {
      * @return the map with word length as key and the list of words as value
      */
     public HashMap<Integer, ArrayList<String>> createWordMap(String fragmentString) {
-        String splitSeparators =
-        ";|:|/|\\?|~|\\.|,|>|<|`|\\[|]|\\{|}|\\(|\\)|!|@|#|\\$|%\\^|&|-|_|\\+|'|=|\\*|\"|\\|| |\t|\r|\n";
-        
         // Split the fragment into an array of Strings
-        String[] arrOfStr = fragmentString.split(splitSeparators);
+        String[] arrOfStr = SPLIT_PATTERN.split(fragmentString);
 
         HashMap<Integer, ArrayList<String>> fragmentMap = new HashMap<>();
 
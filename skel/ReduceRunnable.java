@@ -1,7 +1,6 @@
 
 
 import java.io.File;
-import java.text.DecimalFormat;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.RecursiveAction;
@@ -12,18 +11,22 @@ import java.util.concurrent.RecursiveAction;
 */
 public class ReduceRunnable extends RecursiveAction {
     /**
-    * Index of the Reduce Task 
+    * Index of the first Reduce Task
     */
     private final int reduceIndex;
     /**
+    * Index after the last Reduce Task
+    */
+    private final int endIndex;
+    /**
     * List of Reduce Tasks
     */
     private final ArrayList<TaskReduce> listReduce;
     /**
-    * Output HashMap with the rank of the file as key and 
-    * the String to be written to output as value
+    * Output HashMap with the name of the file as key and
+    * the result to be written to output as value
     */
-    private ConcurrentHashMap<Double, String> outMap;
+    private ConcurrentHashMap<String, FileResult> outMap;
     /**
     * HashMap which combines the maps created for the Map Operations
     */
@@ -40,26 +43,45 @@ public class ReduceRunnable extends RecursiveAction {
     * The number of words with the maximum length
     */
     private int maxLengthCount = 0;
-    /**
-    * Set of all words in the file
-    */
-    private Set<String> set;
 
-    public ReduceRunnable(int reduceIndex, ArrayList<TaskReduce> listReduce, ConcurrentHashMap<Double, String> outMap) {
+    public ReduceRunnable(int reduceIndex, ArrayList<TaskReduce> listReduce, ConcurrentHashMap<String, FileResult> outMap) {
+        this(reduceIndex, listReduce.size(), listReduce, outMap);
+    }
+
+    public ReduceRunnable(int reduceIndex, int endIndex, ArrayList<TaskReduce> listReduce,
+                          ConcurrentHashMap<String, FileResult> outMap) {
         this.reduceIndex = reduceIndex;
+        this.endIndex = endIndex;
         this.listReduce =  listReduce;
         this.outMap = outMap;
     }
 
     @Override
     protected void compute()  {
+        if (endIndex - reduceIndex <= 0) {
+            return;
+        }
+
+        // Split the Reduce Tasks in halves until a single one is left
+        if (endIndex - reduceIndex > 1) {
+            int middle = (reduceIndex + endIndex) >>> 1;
+
+            invokeAll(new ReduceRunnable(reduceIndex, middle, listReduce, outMap),
+                    new ReduceRunnable(middle, endIndex, listReduce, outMap));
+            return;
+        }
+
         TaskReduce reduce = listReduce.get(reduceIndex);
 
         combineMap = new HashMap<>();
-        set = new HashSet<>();
 
         combineWordMaps(reduce);
 
+        // Files without words don't have a rank
+        if (totalWords == 0) {
+            return;
+        }
+
         double rank = computeFileRank();
 
         // Calculate the number of words which are the maximum length
@@ -74,18 +96,16 @@ public class ReduceRunnable extends RecursiveAction {
         // Add entry to output map
         File file = new File(reduce.getFileName());
         String name = file.getName();
-        DecimalFormat df = new DecimalFormat("0.00");
-        outMap.putIfAbsent(rank, name + "," + df.format(rank) + "," + maxLength + ","  + maxLengthCount);
-
-        List<ReduceRunnable> tasks = new ArrayList<>();
-        if (reduceIndex + 1 < listReduce.size()) {
-            ReduceRunnable t = new ReduceRunnable(reduceIndex + 1, listReduce, outMap);
-            tasks.add(t);
-            t.fork();
-        }
+        outMap.put(reduce.getFileName(), new FileResult(name, rank, maxLength, maxLengthCount));
+    }
 
-        for (ReduceRunnable task : tasks) {
-            task.join();
+    /**
+     * Execute the Reduce operations of all the Reduce Tasks on the
+     * calling thread, without a pool, used for small inputs
+     */
+    public void computeInline() {
+        for (int i = reduceIndex; i < endIndex; i++) {
+            new ReduceRunnable(i, i + 1, listReduce, outMap).compute();
         }
     }
 
@@ -111,8 +131,6 @@ public class ReduceRunnable extends RecursiveAction {
 
                     // Adds the number of words to total size
                     totalWords += entry.getValue().size();
-                    // Adds the words to the set
-                    set.addAll(entry.getValue());
 
                     // If the key is not found in the combineMap
                     if (!combineMap.containsKey(entry.getKey())) {
@@ -131,23 +149,16 @@ public class ReduceRunnable extends RecursiveAction {
     }
 
      /**
-     * Computes the file rank
+     * Computes the file rank. All the words with the same length have
+     * the same value, so the rank is computed from the number of words
+     * of each length
      * @return the rank of the file
      */
     public double computeFileRank() {
         double rank = 0;
 
-        for (String word : set) {
-            // Finds the entry which contains the word's length
-            ArrayList<String> list = combineMap.entrySet().stream()
-                    .filter( e -> e.getKey() == word.length())
-                    .map(Map.Entry::getValue)
-                    .findFirst().get();
-
-            // Computes the frequency of the word in the list
-            int wordCount = Collections.frequency(list, word);
-
-            rank += computeFib(word.length() + 1) * wordCount;
+        for (Map.Entry<Integer, ArrayList<String>> entry : combineMap.entrySet()) {
+            rank += computeFib(entry.getKey() + 1) * entry.getValue().size();
         }
 
         return rank / totalWords;
@@ -159,9 +170,20 @@ public class ReduceRunnable extends RecursiveAction {
      * @param position the length of the word incremented by 1
      * @return value of the length
      */
-    public double computeFib(int position) {
+    public static double computeFib(int position) {
+        double prev = 0;
+        double current = 1;
+
         if (position <= 1)
             return position;
-        return computeFib(position - 1) + computeFib(position - 2);
+
+        // The values stop growing once they are infinite
+        for (int i = 2; i <= position && current != Double.POSITIVE_INFINITY; i++) {
+            double next = prev + current;
+            prev = current;
+            current = next;
+        }
+
+        return current;
     }
 }
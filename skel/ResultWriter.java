@@ -0,0 +1,393 @@
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.util.Collection;
+import java.util.Locale;
+
+/**
+ * Class that writes the results of the Reduce operations to the output
+ * file through a FileChannel, formatting them directly into a reusable
+ * byte buffer. The supported formats are:
+ * - CSV: name,rank,maxLength,maxLengthCount on each line
+ * - JSONL: a JSON object with the same fields on each line, where
+ *   a rank which is not finite is written as null
+ * - BINARY: a columnar format for other tools, in big-endian order:
+ *   the magic "APDR", the version (int), the number of rows (int), then
+ *   the names (int length + UTF-8 bytes), the ranks (double),
+ *   the maximum lengths (int) and the counts (long) of all rows
+*/
+public class ResultWriter {
+    /**
+    * Formats in which the results can be written
+    */
+    public enum Format {
+        CSV, JSONL, BINARY
+    }
+
+    /**
+    * Version of the binary format
+    */
+    private static final int BINARY_VERSION = 1;
+    /**
+    * Size of the buffer the results are formatted into
+    */
+    private static final int BUFFER_SIZE = 64 * 1024;
+    /**
+    * Largest value that is rounded without falling back to DecimalFormat
+    */
+    private static final double MAX_FAST_VALUE = 1e13;
+
+    private static final byte[] MAGIC = "APDR".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] LINE_SEPARATOR = System.lineSeparator().getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] JSON_NAME = "{\"name\":\"".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] JSON_RANK = "\",\"rank\":".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] JSON_MAX_LENGTH = ",\"maxLength\":".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] JSON_MAX_LENGTH_COUNT = ",\"maxLengthCount\":".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] JSON_NULL = "null".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+    /**
+    * Format of the output file
+    */
+    private final Format format;
+    /**
+    * Buffer reused for every write
+    */
+    private final ByteBuffer buffer;
+    /**
+    * Scratch space used to write the digits of a number
+    */
+    private final byte[] digits = new byte[20];
+    /**
+    * Format of the values too large for the fast rounding, which
+    * rounds from the shortest decimal form of the value instead
+    * of its exact binary value
+    */
+    private final DecimalFormat largeFormat =
+            new DecimalFormat("0.00", DecimalFormatSymbols.getInstance(Locale.ROOT));
+    /**
+    * Channel of the file being written
+    */
+    private FileChannel channel;
+
+    public ResultWriter(Format format) {
+        this.format = format;
+        this.buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    }
+
+    /**
+     * Write the results to file, replacing its content
+     * @param results the results in the order they are written
+     * @param outName name of the output file
+     * @throws IOException in case of exceptions to reading/writing
+     */
+    public void write(Collection<FileResult> results, String outName) throws IOException {
+        writeTo(results, Paths.get(outName), StandardOpenOption.WRITE,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    /**
+     * Replace the output file with the results, used in watch mode where
+     * the output is read while it is rewritten. A regular file is replaced
+     * by a temporary file written in the same directory, so a reader never
+     * sees a partial output; any other output (a pipe, a symlink or a
+     * device) is written directly, like in write
+     * @param results the results in the order they are written
+     * @param outName name of the output file
+     * @throws IOException in case of exceptions to reading/writing
+     */
+    public void replace(Collection<FileResult> results, String outName) throws IOException {
+        Path out = Paths.get(outName).toAbsolutePath();
+
+        if (Files.exists(out, LinkOption.NOFOLLOW_LINKS)
+                && !Files.isRegularFile(out, LinkOption.NOFOLLOW_LINKS)) {
+            write(results, outName);
+            return;
+        }
+
+        // Opened with CREATE_NEW instead of Files.createTempFile,
+        // so the file gets the permissions given by the umask
+        Path tmp = out.resolveSibling("." + out.getFileName() + "." + ProcessHandle.current().pid() + ".tmp");
+        Files.deleteIfExists(tmp);
+
+        try {
+            writeTo(results, tmp, StandardOpenOption.WRITE, StandardOpenOption.CREATE_NEW);
+
+            // Keep the permissions of the output that is replaced
+            if (Files.exists(out) && out.getFileSystem().supportedFileAttributeViews().contains("posix")) {
+                Files.setPosixFilePermissions(tmp, Files.getPosixFilePermissions(out));
+            }
+
+            Files.move(tmp, out, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /**
+     * Write the results to a file in the chosen format
+     * @param results the results in the order they are written
+     * @param path the file to be written
+     * @param options how the file is opened
+     * @throws IOException in case of exceptions to reading/writing
+     */
+    private void writeTo(Collection<FileResult> results, Path path, OpenOption... options) throws IOException {
+        channel = FileChannel.open(path, options);
+        buffer.clear();
+
+        try {
+            switch (format) {
+                case CSV:
+                    for (FileResult result : results) {
+                        writeCsv(result);
+                    }
+                    break;
+                case JSONL:
+                    for (FileResult result : results) {
+                        writeJson(result);
+                    }
+                    break;
+                case BINARY:
+                    writeBinary(results);
+                    break;
+            }
+
+            flush();
+        } finally {
+            channel.close();
+            channel = null;
+        }
+    }
+
+    /**
+     * Write a result as a CSV line
+     * @param result the result to be written
+     * @throws IOException in case of exceptions to reading/writing
+     */
+    private void writeCsv(FileResult result) throws IOException {
+        put(result.getNameBytes());
+        putByte((byte) ',');
+        putFixed(result.getRank());
+        putByte((byte) ',');
+        putLong(result.getMaxLength());
+        putByte((byte) ',');
+        putLong(result.getMaxLengthCount());
+        put(LINE_SEPARATOR);
+    }
+
+    /**
+     * Write a result as a JSON object on its own line
+     * @param result the result to be written
+     * @throws IOException in case of exceptions to reading/writing
+     */
+    private void writeJson(FileResult result) throws IOException {
+        put(JSON_NAME);
+        putJsonString(result.getNameBytes());
+        put(JSON_RANK);
+
+        // JSON doesn't have Infinity or NaN
+        if (Double.isFinite(result.getRank())) {
+            putFixed(result.getRank());
+        } else {
+            put(JSON_NULL);
+        }
+
+        put(JSON_MAX_LENGTH);
+        putLong(result.getMaxLength());
+        put(JSON_MAX_LENGTH_COUNT);
+        putLong(result.getMaxLengthCount());
+        putByte((byte) '}');
+        put(LINE_SEPARATOR);
+    }
+
+    /**
+     * Write the results in the binary columnar format
+     * @param results the results to be written
+     * @throws IOException in case of exceptions to reading/writing
+     */
+    private void writeBinary(Collection<FileResult> results) throws IOException {
+        put(MAGIC);
+        ensure(8);
+        buffer.putInt(BINARY_VERSION);
+        buffer.putInt(results.size());
+
+        for (FileResult result : results) {
+            ensure(4);
+            buffer.putInt(result.getNameBytes().length);
+            put(result.getNameBytes());
+        }
+
+        for (FileResult result : results) {
+            ensure(8);
+            buffer.putDouble(result.getRank());
+        }
+
+        for (FileResult result : results) {
+            ensure(4);
+            buffer.putInt(result.getMaxLength());
+        }
+
+        for (FileResult result : results) {
+            ensure(8);
+            buffer.putLong(result.getMaxLengthCount());
+        }
+    }
+
+    /**
+     * Write a value with two decimals, rounded half-even like
+     * DecimalFormat("0.00"), without creating any objects
+     * for the values that are not close to a tie
+     * @param value the value to be written
+     * @throws IOException in case of exceptions to reading/writing
+     */
+    private void putFixed(double value) throws IOException {
+        if (!Double.isFinite(value) || Math.abs(value) >= MAX_FAST_VALUE) {
+            putAscii(Double.isFinite(value)
+                    ? largeFormat.format(value)
+                    : String.valueOf(value));
+            return;
+        }
+
+        if (value < 0) {
+            putByte((byte) '-');
+            value = -value;
+        }
+
+        double scaled = value * 100;
+        double floor = Math.floor(scaled);
+        double fraction = scaled - floor;
+        long cents = (long) floor;
+
+        if (Math.abs(fraction - 0.5) <= 4 * Math.ulp(scaled)) {
+            // Too close to a tie for the multiplication to decide,
+            // so round the exact value
+            cents = new BigDecimal(value).movePointRight(2)
+                    .setScale(0, RoundingMode.HALF_EVEN).longValue();
+        } else if (fraction > 0.5) {
+            cents++;
+        }
+
+        putLong(cents / 100);
+        putByte((byte) '.');
+        ensure(2);
+        buffer.put((byte) ('0' + cents % 100 / 10));
+        buffer.put((byte) ('0' + cents % 10));
+    }
+
+    /**
+     * Write the decimal digits of a number
+     * @param value the number to be written
+     * @throws IOException in case of exceptions to reading/writing
+     */
+    private void putLong(long value) throws IOException {
+        if (value == Long.MIN_VALUE) {
+            putAscii(String.valueOf(value));
+            return;
+        }
+
+        ensure(digits.length + 1);
+
+        if (value < 0) {
+            buffer.put((byte) '-');
+            value = -value;
+        }
+
+        int position = digits.length;
+        do {
+            digits[--position] = (byte) ('0' + value % 10);
+            value /= 10;
+        } while (value != 0);
+
+        buffer.put(digits, position, digits.length - position);
+    }
+
+    /**
+     * Write a UTF-8 string escaping the characters not allowed in JSON
+     * @param bytes the string encoded in UTF-8
+     * @throws IOException in case of exceptions to reading/writing
+     */
+    private void putJsonString(byte[] bytes) throws IOException {
+        for (byte b : bytes) {
+            ensure(6);
+
+            if (b == '"' || b == '\\') {
+                buffer.put((byte) '\\');
+                buffer.put(b);
+            } else if (b >= 0 && b < 0x20) {
+                buffer.put((byte) '\\');
+                buffer.put((byte) 'u');
+                buffer.put((byte) '0');
+                buffer.put((byte) '0');
+                buffer.put(HEX[b >> 4]);
+                buffer.put(HEX[b & 0xf]);
+            } else {
+                buffer.put(b);
+            }
+        }
+    }
+
+    private void putAscii(String value) throws IOException {
+        put(value.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private void putByte(byte b) throws IOException {
+        ensure(1);
+        buffer.put(b);
+    }
+
+    /**
+     * Write an array of any size, flushing the buffer when it is full
+     * @param bytes the array to be written
+     * @throws IOException in case of exceptions to reading/writing
+     */
+    private void put(byte[] bytes) throws IOException {
+        int offset = 0;
+
+        while (offset < bytes.length) {
+            if (!buffer.hasRemaining()) {
+                flush();
+            }
+
+            int size = Math.min(buffer.remaining(), bytes.length - offset);
+            buffer.put(bytes, offset, size);
+            offset += size;
+        }
+    }
+
+    /**
+     * Make sure the buffer has room for the given number of bytes
+     * @param size the number of bytes to be written
+     * @throws IOException in case of exceptions to reading/writing
+     */
+    private void ensure(int size) throws IOException {
+        if (buffer.remaining() < size) {
+            flush();
+        }
+    }
+
+    /**
+     * Write the content of the buffer to the file and clear it
+     * @throws IOException in case of exceptions to reading/writing
+     */
+    private void flush() throws IOException {
+        buffer.flip();
+
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+
+        buffer.clear();
+    }
+}
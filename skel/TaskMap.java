@@ -24,14 +24,6 @@ public class TaskMap {
     */
     private boolean endOfFile;
     /**
-    * States if the task was modified
-    */
-    private boolean modified;
-    /**
-    * Number of bytes that the fragment is modified with
-    */
-    private long shiftedBytes;
-    /**
     * Map which contains the length of the words found in fragment
     * and the list of words which are that length
     */
@@ -43,8 +35,6 @@ public class TaskMap {
         this.offset = fragmentOffset;
         this.size = fragmentSize;
         this.endOfFile = endOfFile;
-        this.modified = false;
-        this.shiftedBytes = 0;
     }
 
     public HashMap<Integer, ArrayList<String>> getFragmentMap() {
@@ -55,14 +45,6 @@ public class TaskMap {
         this.fragmentMap = fragmentMap;
     }
 
-    public long getShiftedBytes() {
-        return shiftedBytes;
-    }
-
-    public void setShifteBytes(long shiftedBytes) {
-        this.shiftedBytes = shiftedBytes;
-    }
-
     public int getId() {
         return id;
     }
@@ -94,20 +76,4 @@ public class TaskMap {
     public void setEndOfFile(boolean endOfFile) {
         this.endOfFile = endOfFile;
     }
-
-    public boolean isModified() {
-        return modified;
-    }
-
-    public void setModified(boolean modified) {
-        this.modified = modified;
-    }
-
-    public void incrementShiftedBytes() {
-        this.shiftedBytes++;
-    }
-
-    public void incrementSize() {
-        this.size++;
-    }
 }
@@ -9,10 +9,56 @@ public class Tema2 {
      * coordinator to execute the Map-Reduce operations
      * @param args from command line
      * @throws IOException in case of exceptions to reading/writing
+     * @throws InterruptedException if interrupted while waiting in watch mode
      */
-    public static void main(String[] args) throws IOException {
+    public static void main(String[] args) throws IOException, InterruptedException {
+        String usage = "Usage: Tema2 <workers> <in_file> <out_file>"
+                + " [--watch <interval_ms>] [--format csv|jsonl|binary]"
+                + " [--mode default|local] [--groups <n>]";
+
         if (args.length < 3) {
-            System.err.println("Usage: Tema2 <workers> <in_file> <out_file>");
+            System.err.println(usage);
+            return;
+        }
+
+        long watchInterval = 0;
+        ResultWriter.Format format = ResultWriter.Format.CSV;
+        boolean localMode = false;
+        int nGroups = 0;
+
+        // Read the options given after the output file
+        for (int i = 3; i < args.length; i += 2) {
+            if (i + 1 >= args.length) {
+                System.err.println(usage);
+                return;
+            }
+
+            if (args[i].equals("--watch") && args[i + 1].matches("[0-9]{1,18}")
+                    && Long.parseLong(args[i + 1]) >= 1) {
+                watchInterval = Long.parseLong(args[i + 1]);
+            } else if (args[i].equals("--format")) {
+                try {
+                    format = ResultWriter.Format.valueOf(args[i + 1].toUpperCase());
+                } catch (IllegalArgumentException e) {
+                    System.err.println(usage);
+                    return;
+                }
+            } else if (args[i].equals("--mode")
+                    && (args[i + 1].equals("default") || args[i + 1].equals("local"))) {
+                localMode = args[i + 1].equals("local");
+            } else if (args[i].equals("--groups") && args[i + 1].matches("[0-9]{1,9}")
+                    && Integer.parseInt(args[i + 1]) >= 1) {
+                nGroups = Integer.parseInt(args[i + 1]);
+            } else {
+                System.err.println(usage);
+                return;
+            }
+        }
+
+        // The groups are only used in local mode,
+        // which doesn't support watching the files
+        if ((nGroups > 0 && !localMode) || (localMode && watchInterval > 0)) {
+            System.err.println(usage);
             return;
         }
 
@@ -25,27 +71,35 @@ public class Tema2 {
 
         ArrayList<String> fileList = new ArrayList<>();
 
-        // Read data from inFile
+        // Read data from inFile, with a BufferedReader because
+        // loading Scanner takes a large part of a small run
         try {
-            Scanner scanner = new Scanner(new File(inFile));
+            BufferedReader reader = new BufferedReader(new FileReader(inFile));
 
-            fragmentSize = Integer.parseInt(scanner.nextLine());
+            fragmentSize = Integer.parseInt(reader.readLine());
 
-            nFiles = Integer.parseInt(scanner.nextLine());
+            nFiles = Integer.parseInt(reader.readLine());
 
             for (int i = 0; i < nFiles; i++) {
-                fileList.add(scanner.nextLine());
+                fileList.add(reader.readLine());
             }
 
-            scanner.close();
+            reader.close();
         } catch (FileNotFoundException e) {
             e.printStackTrace();
         }
 
         // Create coordinator that manages the threads
-        Coordinator coordinator = new Coordinator(fileList, fragmentSize, nWorkers, outFile);
+        Coordinator coordinator = new Coordinator(fileList, fragmentSize, nWorkers, outFile, format);
 
-        // Execute the Map-Reduce operations
-        coordinator.execute();
+        // In watch mode keep processing the files as they grow,
+        // else execute the Map-Reduce operations once
+        if (watchInterval > 0) {
+            coordinator.watch(watchInterval);
+        } else if (localMode) {
+            coordinator.executeLocal(Math.max(nGroups, 1));
+        } else {
+            coordinator.execute();
+        }
     }
 }
@@ -0,0 +1,36 @@
+#!/bin/bash
+
+# Runs Tema2 from the jar created by build.sh with the class data sharing
+# archive. Inputs of at most 64 KiB (Coordinator.INLINE_LIMIT) also run with
+# only the C1 compiler and the serial garbage collector, which start faster
+# but make the long runs slower.
+# Usage: ./tema2.sh <workers> <in_file> <out_file> [options]
+
+build="build"
+limit=65536
+
+if [ ! -f $build/tema2.jar ]
+then
+	echo "E: Run ./build.sh first"
+	exit 1
+fi
+
+options="-XX:SharedArchiveFile=$build/tema2.jsa -Xshare:auto"
+
+# The files are listed after the fragment size and the number of files
+if [ -r "$2" ]
+then
+	total=0
+	while read -r file
+	do
+		size=$(stat -c %s "$file" 2>/dev/null) || { total=$((limit + 1)); break; }
+		total=$((total + size))
+	done < <(tail -n +3 "$2")
+
+	if [ $total -le $limit ]
+	then
+		options="$options -XX:TieredStopAtLevel=1 -XX:+UseSerialGC"
+	fi
+fi
+
+exec java $options -cp $build/tema2.jar Tema2 "$@"
@@ -0,0 +1,245 @@
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Random;
+
+/**
+ * Generates a synthetic corpus and the input file for Tema2.
+ * The same seed and options always generate the same files.
+ *
+ * Profiles:
+ * - uniform: words with the chosen length distribution
+ * - long-words: also words longer than several fragments
+ * - no-separators: also a run of letters without any separator in each file
+ * - equal-ranks: every file has the same words, so all the ranks are equal
+*/
+public class CorpusGenerator {
+    private static final byte[] LETTERS =
+            "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789".getBytes();
+    private static final byte[] SEPARATORS = " \n,.;:!?-()\"'%^\\".getBytes();
+
+    /**
+    * Random number generator created from the seed
+    */
+    private final Random random;
+    private final String profile;
+    private final int nFiles;
+    private final long minSize;
+    private final long maxSize;
+    private final int maxWordLength;
+    /**
+    * Distribution of the word lengths: uniform or geometric
+    */
+    private final String lengthDist;
+    private final int fragmentSize;
+    /**
+    * Length of the run without separators in the no-separators profile
+    */
+    private final long runLength;
+
+    public CorpusGenerator(long seed, String profile, int nFiles, long minSize, long maxSize,
+                           int maxWordLength, String lengthDist, int fragmentSize, long runLength) {
+        this.random = new Random(seed);
+        this.profile = profile;
+        this.nFiles = nFiles;
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.maxWordLength = maxWordLength;
+        this.lengthDist = lengthDist;
+        this.fragmentSize = fragmentSize;
+        this.runLength = runLength;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: CorpusGenerator <out_dir> [--seed <n>] [--profile"
+                    + " uniform|long-words|no-separators|equal-ranks] [--files <n>]"
+                    + " [--min-size <bytes>] [--max-size <bytes>] [--max-word-length <n>]"
+                    + " [--length-dist uniform|geometric] [--fragment-size <bytes>]"
+                    + " [--run-length <bytes>]");
+            System.exit(1);
+        }
+
+        long seed = 1;
+        String profile = "uniform";
+        int nFiles = 16;
+        long minSize = 64 * 1024;
+        long maxSize = 1024 * 1024;
+        int maxWordLength = 12;
+        String lengthDist = "geometric";
+        int fragmentSize = 1000;
+        long runLength = 4 * 1024 * 1024;
+
+        for (int i = 1; i + 1 < args.length; i += 2) {
+            String value = args[i + 1];
+
+            switch (args[i]) {
+                case "--seed": seed = Long.parseLong(value); break;
+                case "--profile": profile = value; break;
+                case "--files": nFiles = Integer.parseInt(value); break;
+                case "--min-size": minSize = Long.parseLong(value); break;
+                case "--max-size": maxSize = Long.parseLong(value); break;
+                case "--max-word-length": maxWordLength = Integer.parseInt(value); break;
+                case "--length-dist": lengthDist = value; break;
+                case "--fragment-size": fragmentSize = Integer.parseInt(value); break;
+                case "--run-length": runLength = Long.parseLong(value); break;
+                default:
+                    System.err.println("Unknown option " + args[i]);
+                    System.exit(1);
+            }
+        }
+
+        CorpusGenerator generator = new CorpusGenerator(seed, profile, nFiles, minSize, maxSize,
+                maxWordLength, lengthDist, fragmentSize, runLength);
+
+        File input = generator.generate(new File(args[0]));
+        System.out.println(input.getPath());
+    }
+
+    /**
+     * Generate the files of the corpus and the input file which lists them
+     * @param dir the directory where the files are generated
+     * @return the input file
+     * @throws IOException in case of exceptions to reading/writing
+     */
+    public File generate(File dir) throws IOException {
+        dir.mkdirs();
+
+        ArrayList<String> fileNames = new ArrayList<>();
+        // In the equal-ranks profile all the files get the words of the first one
+        byte[] sharedWords = null;
+
+        for (int i = 0; i < nFiles; i++) {
+            File file = new File(dir, String.format("file_%05d", i));
+            long size = minSize + (maxSize > minSize ? (long) (random.nextDouble() * (maxSize - minSize)) : 0);
+
+            try (OutputStream os = new BufferedOutputStream(new FileOutputStream(file), 1 << 16)) {
+                if (profile.equals("equal-ranks")) {
+                    if (sharedWords == null) {
+                        sharedWords = generateWords(size);
+                    }
+                    writeShuffled(os, sharedWords);
+                } else {
+                    writeWords(os, size);
+                }
+            }
+
+            fileNames.add(file.getPath());
+        }
+
+        File input = new File(dir, "input.txt");
+        try (PrintWriter pw = new PrintWriter(input)) {
+            pw.println(fragmentSize);
+            pw.println(nFiles);
+            for (String fileName : fileNames) {
+                pw.println(fileName);
+            }
+        }
+
+        return input;
+    }
+
+    /**
+     * Write words and separators until the size is reached,
+     * adding the pathological words of the profile
+     * @param os where the words are written
+     * @param size the number of bytes to write
+     * @throws IOException in case of exceptions to reading/writing
+     */
+    private void writeWords(OutputStream os, long size) throws IOException {
+        long written = 0;
+        // Position of the run without separators, in the middle of the file
+        long runPosition = profile.equals("no-separators") ? size / 2 : -1;
+
+        while (written < size) {
+            int length;
+
+            if (runPosition >= 0 && written >= runPosition) {
+                length = (int) runLength;
+                runPosition = -1;
+            } else if (profile.equals("long-words") && random.nextInt(1000) == 0) {
+                // Words that cover between one and five fragments
+                length = fragmentSize + random.nextInt(4 * fragmentSize + 1);
+            } else {
+                length = nextWordLength();
+            }
+
+            for (int j = 0; j < length; j++) {
+                os.write(LETTERS[random.nextInt(LETTERS.length)]);
+            }
+            os.write(SEPARATORS[random.nextInt(SEPARATORS.length)]);
+
+            written += length + 1;
+        }
+    }
+
+    /**
+     * Generate the words of a file in memory, each followed by a space
+     * @param size the approximate number of bytes to generate
+     * @return the words
+     */
+    private byte[] generateWords(long size) {
+        StringBuilder sb = new StringBuilder();
+
+        while (sb.length() < size) {
+            int length = nextWordLength();
+            for (int j = 0; j < length; j++) {
+                sb.append((char) LETTERS[random.nextInt(LETTERS.length)]);
+            }
+            sb.append(' ');
+        }
+
+        return sb.toString().getBytes();
+    }
+
+    /**
+     * Write the words in a random order, so the files have
+     * different contents but the same rank
+     * @param os where the words are written
+     * @param words the words, each followed by a space
+     * @throws IOException in case of exceptions to reading/writing
+     */
+    private void writeShuffled(OutputStream os, byte[] words) throws IOException {
+        ArrayList<int[]> bounds = new ArrayList<>();
+        int start = 0;
+
+        for (int i = 0; i < words.length; i++) {
+            if (words[i] == ' ') {
+                bounds.add(new int[] {start, i + 1});
+                start = i + 1;
+            }
+        }
+
+        for (int i = bounds.size() - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int[] tmp = bounds.get(i);
+            bounds.set(i, bounds.get(j));
+            bounds.set(j, tmp);
+        }
+
+        for (int[] bound : bounds) {
+            os.write(words, bound[0], bound[1] - bound[0]);
+        }
+    }
+
+    /**
+     * Choose the length of the next word from the distribution
+     * @return the length, between 1 and the maximum word length
+     */
+    private int nextWordLength() {
+        if (lengthDist.equals("uniform")) {
+            return 1 + random.nextInt(maxWordLength);
+        }
+
+        // Geometric distribution, where short words are more frequent
+        int length = 1;
+        while (length < maxWordLength && random.nextInt(10) < 7) {
+            length++;
+        }
+        return length;
+    }
+}
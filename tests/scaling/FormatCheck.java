@@ -0,0 +1,215 @@
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Checks that the ranks are rounded exactly like DecimalFormat, then runs
+ * Tema2 on an input file with the JSONL and binary output formats,
+ * reads the outputs back and checks them against ReferenceRanker
+*/
+public class FormatCheck {
+    /**
+    * A line of the JSONL output, where the rank is a number
+    * with two decimals or null
+    */
+    private static final Pattern JSON_LINE = Pattern.compile(
+            "\\{\"name\":\"((?:[^\"\\\\]|\\\\.)*)\",\"rank\":(null|-?\\d+\\.\\d\\d),"
+            + "\"maxLength\":(\\d+),\"maxLengthCount\":(\\d+)\\}");
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.err.println("Usage: FormatCheck <in_file> [workers]");
+            System.exit(1);
+        }
+
+        String inFile = args[0];
+        String workers = args.length > 1 ? args[1] : "2";
+        List<ReferenceRanker.Result> reference = ReferenceRanker.rank(inFile);
+
+        File outFile = File.createTempFile("format", ".out");
+        outFile.deleteOnExit();
+
+        boolean allCorrect = true;
+
+        String roundingError = checkRounding(300000, 1);
+        System.out.printf("%-8s %s%n", "rounding", roundingError == null ? "ok" : "FAIL");
+
+        if (roundingError != null) {
+            System.out.println("  " + roundingError);
+            allCorrect = false;
+        }
+
+        for (String format : new String[] {"jsonl", "binary"}) {
+            Tema2.main(new String[] {workers, inFile, outFile.getPath(), "--format", format});
+
+            String error;
+            try {
+                List<String> lines = format.equals("jsonl")
+                        ? readJsonLines(outFile) : readBinary(outFile);
+                error = ScalingHarness.check(lines, reference);
+            } catch (IOException e) {
+                error = e.getMessage();
+            }
+
+            System.out.printf("%-8s %s%n", format, error == null ? "ok" : "FAIL");
+
+            if (error != null) {
+                System.out.println("  " + error);
+                allCorrect = false;
+            }
+        }
+
+        System.exit(allCorrect ? 0 : 1);
+    }
+
+    /**
+     * Write random ranks with ResultWriter and check that every one is
+     * written exactly like DecimalFormat("0.00"), including the values
+     * close to a tie and the values too large for the fast rounding
+     * @param count the number of ranks
+     * @param seed the seed of the random ranks
+     * @return the first difference, or null if there is none
+     * @throws IOException in case of exceptions to reading/writing
+     */
+    private static String checkRounding(int count, long seed) throws IOException {
+        Random random = new Random(seed);
+        List<FileResult> results = new ArrayList<>();
+
+        for (int i = 0; i < count; i++) {
+            double value;
+
+            switch (i % 4) {
+                case 0:
+                    // Any magnitude, up to the ranks of very long words
+                    value = Math.pow(10, random.nextDouble() * 20);
+                    break;
+                case 1:
+                    // Close to a tie of the second decimal
+                    value = (random.nextInt(1000000) + 0.5) / 100;
+                    break;
+                case 2:
+                    // Exact binary ties, such as 0.125
+                    value = random.nextInt(1000000) + (2 * random.nextInt(4) + 1) / 8.0;
+                    break;
+                default:
+                    // Around the limit of the fast rounding
+                    value = 1e12 + random.nextDouble() * 1e15;
+                    break;
+            }
+
+            results.add(new FileResult("r" + i, value, 1, 1));
+        }
+
+        File outFile = File.createTempFile("rounding", ".out");
+        outFile.deleteOnExit();
+        new ResultWriter(ResultWriter.Format.CSV).write(results, outFile.getPath());
+
+        DecimalFormat df = new DecimalFormat("0.00", DecimalFormatSymbols.getInstance(Locale.ROOT));
+        List<String> lines = Files.readAllLines(outFile.toPath(), StandardCharsets.UTF_8);
+
+        if (lines.size() != count) {
+            return "expected " + count + " lines, found " + lines.size();
+        }
+
+        for (int i = 0; i < count; i++) {
+            String expected = df.format(results.get(i).getRank());
+            String actual = lines.get(i).split(",")[1];
+
+            if (!actual.equals(expected)) {
+                return "rank " + results.get(i).getRank() + " written as " + actual
+                        + ", DecimalFormat gives " + expected;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Read the JSONL output and convert every line
+     * to the CSV format, checked by ScalingHarness
+     * @param file the output file
+     * @return the lines in the CSV format
+     * @throws IOException if a line is not valid
+     */
+    private static List<String> readJsonLines(File file) throws IOException {
+        List<String> lines = new ArrayList<>();
+
+        for (String line : Files.readAllLines(file.toPath(), StandardCharsets.UTF_8)) {
+            Matcher matcher = JSON_LINE.matcher(line);
+
+            if (!matcher.matches()) {
+                throw new IOException("invalid JSON line: " + line);
+            }
+
+            // Only the ranks which are not finite are written as null
+            String rank = matcher.group(2).equals("null") ? "Infinity" : matcher.group(2);
+
+            lines.add(matcher.group(1).replaceAll("\\\\(.)", "$1") + "," + rank + ","
+                    + matcher.group(3) + "," + matcher.group(4));
+        }
+
+        return lines;
+    }
+
+    /**
+     * Read the binary columnar output and convert every row
+     * to the CSV format, checked by ScalingHarness
+     * @param file the output file
+     * @return the rows in the CSV format
+     * @throws IOException if the file is not valid
+     */
+    private static List<String> readBinary(File file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            byte[] magic = new byte[4];
+            in.readFully(magic);
+
+            if (!new String(magic, StandardCharsets.US_ASCII).equals("APDR") || in.readInt() != 1) {
+                throw new IOException("invalid binary header");
+            }
+
+            int rows = in.readInt();
+            String[] names = new String[rows];
+            double[] ranks = new double[rows];
+            int[] maxLengths = new int[rows];
+            long[] counts = new long[rows];
+
+            for (int i = 0; i < rows; i++) {
+                byte[] name = new byte[in.readInt()];
+                in.readFully(name);
+                names[i] = new String(name, StandardCharsets.UTF_8);
+            }
+            for (int i = 0; i < rows; i++) {
+                ranks[i] = in.readDouble();
+            }
+            for (int i = 0; i < rows; i++) {
+                maxLengths[i] = in.readInt();
+            }
+            for (int i = 0; i < rows; i++) {
+                counts[i] = in.readLong();
+            }
+
+            if (in.read() != -1) {
+                throw new IOException("unexpected data after the last column");
+            }
+
+            List<String> lines = new ArrayList<>();
+            for (int i = 0; i < rows; i++) {
+                lines.add(names[i] + "," + ranks[i] + "," + maxLengths[i] + "," + counts[i]);
+            }
+
+            return lines;
+        }
+    }
+}
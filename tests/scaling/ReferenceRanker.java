@@ -0,0 +1,120 @@
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+
+/**
+ * Single-threaded implementation of the ranking, written independently
+ * of Tema2 and used to check its results. Each file is read once, in order,
+ * counting the words of each length.
+*/
+public class ReferenceRanker {
+    /**
+    * Separators used by Tema2 to split the files
+    */
+    private static final String SEPARATORS = ";:/?~\\.,><`[]{}()!@#$%^&-_+'=*\"| \t\r\n";
+
+    /**
+     * Result computed for a file
+     */
+    public static class Result {
+        public final String name;
+        public final double rank;
+        public final int maxLength;
+        public final long maxLengthCount;
+
+        public Result(String name, double rank, int maxLength, long maxLengthCount) {
+            this.name = name;
+            this.rank = rank;
+            this.maxLength = maxLength;
+            this.maxLengthCount = maxLengthCount;
+        }
+    }
+
+    /**
+     * Rank the files listed in a Tema2 input file
+     * @param inFile the input file
+     * @return the results in descending order by rank
+     * @throws IOException in case of exceptions to reading/writing
+     */
+    public static List<Result> rank(String inFile) throws IOException {
+        List<String> lines = Files.readAllLines(Paths.get(inFile));
+        int nFiles = Integer.parseInt(lines.get(1).trim());
+        List<Result> results = new ArrayList<>();
+
+        for (int i = 0; i < nFiles; i++) {
+            Result result = rankFile(lines.get(2 + i));
+            if (result != null) {
+                results.add(result);
+            }
+        }
+
+        // Stable sort, so the files with equal ranks keep the input order
+        results.sort((a, b) -> Double.compare(b.rank, a.rank));
+
+        return results;
+    }
+
+    /**
+     * Rank a single file
+     * @param fileName the file to be ranked
+     * @return the result, or null if the file has no words
+     * @throws IOException in case of exceptions to reading/writing
+     */
+    public static Result rankFile(String fileName) throws IOException {
+        TreeMap<Integer, Long> lengthCount = new TreeMap<>();
+        long totalWords = 0;
+        int length = 0;
+
+        try (InputStream is = new BufferedInputStream(new FileInputStream(fileName), 1 << 16)) {
+            int b;
+            while ((b = is.read()) != -1) {
+                if (SEPARATORS.indexOf(b) >= 0) {
+                    if (length > 0) {
+                        lengthCount.merge(length, 1L, Long::sum);
+                        totalWords++;
+                    }
+                    length = 0;
+                } else {
+                    length++;
+                }
+            }
+        }
+
+        if (length > 0) {
+            lengthCount.merge(length, 1L, Long::sum);
+            totalWords++;
+        }
+
+        if (totalWords == 0) {
+            return null;
+        }
+
+        double rank = 0;
+        for (int wordLength : lengthCount.keySet()) {
+            rank += fib(wordLength + 1) * lengthCount.get(wordLength);
+        }
+
+        int maxLength = lengthCount.lastKey();
+
+        return new Result(new File(fileName).getName(), rank / totalWords,
+                maxLength, lengthCount.get(maxLength));
+    }
+
+    private static double fib(int n) {
+        double a = 0;
+        double b = 1;
+        for (int i = 0; i < n; i++) {
+            double c = a + b;
+            a = b;
+            b = c;
+        }
+        return a;
+    }
+}
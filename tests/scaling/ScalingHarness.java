@@ -0,0 +1,179 @@
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Runs Tema2 on an input file with different numbers of workers,
+ * checks every output against ReferenceRanker and reports the
+ * speedup and the efficiency of each number of workers, compared
+ * to a run with a single worker
+*/
+public class ScalingHarness {
+    /**
+    * Relative difference allowed between two ranks
+    */
+    private static final double RANK_TOLERANCE = 1e-9;
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.err.println("Usage: ScalingHarness <in_file> [--workers 1,2,4,8]"
+                    + " [--runs <n>] [--warmup <n>] [--mode default|local] [--groups <n>]");
+            System.exit(1);
+        }
+
+        String inFile = args[0];
+        int[] workers = {1, 2, 4, 8};
+        int runs = 3;
+        int warmup = 1;
+        String mode = "default";
+        String groups = null;
+
+        for (int i = 1; i + 1 < args.length; i += 2) {
+            String value = args[i + 1];
+
+            switch (args[i]) {
+                case "--workers":
+                    workers = Arrays.stream(value.split(",")).mapToInt(Integer::parseInt).toArray();
+                    break;
+                case "--runs": runs = Integer.parseInt(value); break;
+                case "--warmup": warmup = Integer.parseInt(value); break;
+                case "--mode": mode = value; break;
+                case "--groups": groups = value; break;
+                default:
+                    System.err.println("Unknown option " + args[i]);
+                    System.exit(1);
+            }
+        }
+
+        // The speedup is measured against a run with a single worker,
+        // so it is added when the list doesn't start with one
+        if (workers.length == 0 || workers[0] != 1) {
+            int[] withBase = new int[workers.length + 1];
+            withBase[0] = 1;
+            System.arraycopy(workers, 0, withBase, 1, workers.length);
+            workers = withBase;
+        }
+
+        long start = System.nanoTime();
+        List<ReferenceRanker.Result> reference = ReferenceRanker.rank(inFile);
+        System.out.printf("reference: %d files, %.1f ms%n", reference.size(),
+                (System.nanoTime() - start) / 1e6);
+
+        File outFile = File.createTempFile("scaling", ".txt");
+        outFile.deleteOnExit();
+
+        System.out.printf("%8s %12s %9s %11s %7s%n", "workers", "median ms", "speedup", "efficiency", "check");
+
+        double baseTime = 0;
+        boolean allCorrect = true;
+
+        for (int nWorkers : workers) {
+            // Tema2 only accepts the groups in local mode
+            String[] tema2Args = groups == null
+                    ? new String[] {String.valueOf(nWorkers), inFile, outFile.getPath(), "--mode", mode}
+                    : new String[] {String.valueOf(nWorkers), inFile, outFile.getPath(), "--mode", mode,
+                            "--groups", groups};
+            String error = null;
+
+            for (int i = 0; i < warmup; i++) {
+                Tema2.main(tema2Args);
+            }
+
+            double[] times = new double[runs];
+            for (int i = 0; i < runs; i++) {
+                outFile.delete();
+
+                long runStart = System.nanoTime();
+                Tema2.main(tema2Args);
+                times[i] = (System.nanoTime() - runStart) / 1e6;
+
+                if (error == null) {
+                    error = check(Files.readAllLines(outFile.toPath()), reference);
+                }
+            }
+
+            Arrays.sort(times);
+            double median = times[runs / 2];
+
+            // The run with a single worker is the base of the speedup
+            if (baseTime == 0) {
+                baseTime = median;
+            }
+
+            double speedup = baseTime / median;
+            System.out.printf("%8d %12.1f %9.2f %11.2f %7s%n", nWorkers, median,
+                    speedup, speedup / nWorkers, error == null ? "ok" : "FAIL");
+
+            if (error != null) {
+                System.out.println("  " + error);
+                allCorrect = false;
+            }
+        }
+
+        System.exit(allCorrect ? 0 : 1);
+    }
+
+    /**
+     * Compare the output of Tema2 with the reference results. The files with
+     * the same rank may be in any order, so the output is only required to
+     * be sorted by rank and to contain the same result for every file.
+     * @param lines the lines of the output file
+     * @param reference the reference results
+     * @return the first difference found, or null if the output is correct
+     */
+    public static String check(List<String> lines, List<ReferenceRanker.Result> reference) {
+        if (lines.size() != reference.size()) {
+            return "expected " + reference.size() + " lines, found " + lines.size();
+        }
+
+        HashMap<String, ReferenceRanker.Result> expected = new HashMap<>();
+        for (ReferenceRanker.Result result : reference) {
+            expected.put(result.name, result);
+        }
+
+        double prevRank = Double.POSITIVE_INFINITY;
+
+        for (String line : lines) {
+            String[] fields = line.split(",");
+            ReferenceRanker.Result result = expected.remove(fields[0]);
+
+            if (result == null) {
+                return "unexpected or duplicated file: " + line;
+            }
+
+            double rank = Double.parseDouble(fields[1]);
+            if (!sameRank(rank, result.rank)) {
+                return "wrong rank: " + line + ", expected " + result.rank;
+            }
+
+            if (Integer.parseInt(fields[2]) != result.maxLength
+                    || Long.parseLong(fields[3]) != result.maxLengthCount) {
+                return "wrong maximum length: " + line + ", expected "
+                        + result.maxLength + "," + result.maxLengthCount;
+            }
+
+            if (rank > prevRank && !sameRank(rank, prevRank)) {
+                return "not sorted by rank: " + line;
+            }
+            prevRank = rank;
+        }
+
+        return null;
+    }
+
+    /**
+     * Check if a rank written with two decimals matches a rank
+     * @param written the rank read from the output
+     * @param rank the exact rank
+     * @return true if the ranks are the same
+     */
+    private static boolean sameRank(double written, double rank) {
+        if (Double.isInfinite(written) || Double.isInfinite(rank)) {
+            return written == rank;
+        }
+
+        return Math.abs(written - rank) <= 0.005 + RANK_TOLERANCE * Math.abs(rank);
+    }
+}
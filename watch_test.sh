@@ -0,0 +1,78 @@
+#!/bin/bash
+
+# Checks the watch mode: appends data to files while Tema2 --watch runs and
+# after every step compares its output with a one-shot run on the same files.
+# The steps include a word split between two batches, a word that grows
+# without separators over several batches, a truncated file and a character
+# split between two batches.
+
+build=$(mktemp -d)
+work=$(mktemp -d)
+tout=5
+failed=0
+pid=""
+
+trap 'kill $pid 2> /dev/null; rm -rf $build $work' EXIT
+
+javac -d $build skel/*.java || exit 1
+
+printf '5\n2\n%s\n%s\n' $work/a.log $work/b.log > $work/in.txt
+
+# waits until the watch output is the same as a one-shot run (parameter: step)
+function check_step {
+	java -Dfile.encoding=UTF-8 -cp $build Tema2 1 $work/in.txt $work/ref.txt
+
+	for i in $(seq $((tout * 10)))
+	do
+		if cmp -s $work/ref.txt $work/out.txt
+		then
+			echo "OK: $1"
+			return
+		fi
+		sleep 0.1
+	done
+
+	echo "W: $1: the watch output is different from the one-shot run"
+	echo "Expected:"
+	cat $work/ref.txt
+	echo "Found:"
+	cat $work/out.txt
+	failed=1
+}
+
+printf 'hello world, ' > $work/a.log
+printf 'foo' > $work/b.log
+
+# UTF-8 whatever the locale, so a character can have several bytes
+java -Dfile.encoding=UTF-8 -cp $build Tema2 2 $work/in.txt $work/out.txt --watch 50 &
+pid=$!
+
+check_step "initial files"
+
+printf 'spli' >> $work/a.log
+printf ' bar\n' >> $work/b.log
+check_step "word not finished"
+
+printf 'tword more\n' >> $work/a.log
+check_step "word split between batches"
+
+for part in aaaa bbbb cccc
+do
+	printf $part >> $work/a.log
+	check_step "word without separators ($part)"
+done
+
+printf ' end\n' >> $work/a.log
+check_step "long word finished"
+
+printf 'new\n' > $work/b.log
+check_step "truncated file"
+
+# the two bytes of 'é' in UTF-8, appended in different batches
+printf 'h\xc3' >> $work/a.log
+check_step "incomplete character"
+
+printf '\xa9llo' >> $work/a.log
+check_step "character split between batches"
+
+exit $failed